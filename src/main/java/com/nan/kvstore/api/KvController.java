@@ -2,15 +2,20 @@ package com.nan.kvstore.api;
 
 import java.util.Map;
 
+import org.springframework.http.MediaType;
 import org.springframework.http.ResponseEntity;
 import org.springframework.web.bind.annotation.DeleteMapping;
 import org.springframework.web.bind.annotation.GetMapping;
+import org.springframework.web.bind.annotation.PostMapping;
 import org.springframework.web.bind.annotation.PutMapping;
+import org.springframework.web.bind.annotation.RequestBody;
 import org.springframework.web.bind.annotation.RequestMapping;
 import org.springframework.web.bind.annotation.RequestParam;
 import org.springframework.web.bind.annotation.RestController;
 
 import com.nan.kvstore.model.VersionedValue;
+import com.nan.kvstore.protocol.KvFrame;
+import com.nan.kvstore.service.HintedHandoffService;
 import com.nan.kvstore.service.KvService;
 
 @RestController
@@ -18,9 +23,11 @@ import com.nan.kvstore.service.KvService;
 public class KvController {
 
     private final KvService service;
+    private final HintedHandoffService handoff;
 
-    public KvController(KvService service) {
+    public KvController(KvService service, HintedHandoffService handoff) {
         this.service = service;
+        this.handoff = handoff;
     }
 
     // Health endpoint used by gateway to check node liveness
@@ -47,6 +54,76 @@ public class KvController {
         return ResponseEntity.ok(vv);
     }
 
+    // PUT /kv/bin/put   body = KvFrame (key, version, value); version = NO_VERSION -> node generates one
+    // Returns an ack frame (key, stored version, empty value).
+    @PutMapping(value = "/bin/put", consumes = MediaType.APPLICATION_OCTET_STREAM_VALUE,
+            produces = MediaType.APPLICATION_OCTET_STREAM_VALUE)
+    public ResponseEntity<byte[]> putBinary(@RequestBody byte[] body) {
+        KvFrame frame;
+        try {
+            frame = KvFrame.decode(body);
+        } catch (IllegalArgumentException e) {
+            return ResponseEntity.badRequest().build();
+        }
+
+        Long version = frame.getVersion() == KvFrame.NO_VERSION ? null : frame.getVersion();
+        VersionedValue vv = service.put(frame.getKey(), frame.getValue(), version);
+        return ResponseEntity.ok(KvFrame.encodeKey(frame.getKey(), vv.getVersion()));
+    }
+
+    // POST /kv/bin/get   body = KvFrame with the key (value empty) -> KvFrame with stored version + value
+    // POST (not GET) because the key travels in the body.
+    @PostMapping(value = "/bin/get", consumes = MediaType.APPLICATION_OCTET_STREAM_VALUE,
+            produces = MediaType.APPLICATION_OCTET_STREAM_VALUE)
+    public ResponseEntity<byte[]> getBinary(@RequestBody byte[] body) {
+        KvFrame frame;
+        try {
+            frame = KvFrame.decode(body);
+        } catch (IllegalArgumentException e) {
+            return ResponseEntity.badRequest().build();
+        }
+
+        VersionedValue vv = service.get(frame.getKey());
+        if (vv == null) return ResponseEntity.notFound().build();
+        return ResponseEntity.ok(KvFrame.encode(frame.getKey(), vv.getVersion(), vv.rawValue()));
+    }
+
+    // PUT /kv/bin/hint?owner=http://...   body = KvFrame
+    // Sloppy quorum: this node stands in for a down replica (owner). The frame is held as a hint,
+    // not applied to our own store, and handed back to the owner once it is healthy again.
+    @PutMapping(value = "/bin/hint", consumes = MediaType.APPLICATION_OCTET_STREAM_VALUE,
+            produces = MediaType.APPLICATION_OCTET_STREAM_VALUE)
+    public ResponseEntity<byte[]> putHint(@RequestParam String owner, @RequestBody byte[] body) {
+        KvFrame frame;
+        try {
+            frame = KvFrame.decode(body);
+        } catch (IllegalArgumentException e) {
+            return ResponseEntity.badRequest().build();
+        }
+
+        try {
+            // Full queue -> 503 so the gateway tries the next fallback instead
+            if (!handoff.addHint(owner, body)) return ResponseEntity.status(503).build();
+        } catch (IllegalArgumentException e) {
+            // owner must be one of kv.nodes: we never probe or push to arbitrary URLs
+            return ResponseEntity.badRequest().build();
+        }
+        return ResponseEntity.ok(KvFrame.encodeKey(frame.getKey(), frame.getVersion()));
+    }
+
+    // Debug: hints this node is holding for other nodes
+    @GetMapping("/handoff/pending")
+    public ResponseEntity<Map<String, Integer>> pendingHints() {
+        return ResponseEntity.ok(handoff.pending());
+    }
+
+    // Manual flush endpoint (in addition to background loop)
+    @PostMapping("/handoff/flush")
+    public ResponseEntity<String> flushHints() {
+        int delivered = handoff.flush();
+        return ResponseEntity.ok("HINTS HANDED BACK. delivered=" + delivered + " remaining=" + handoff.pending());
+    }
+
     // DELETE /kv/delete?key=...
     @DeleteMapping("/delete")
     public ResponseEntity<String> delete(@RequestParam String key) {
@@ -28,6 +28,14 @@ public class LruCache {
         cache.put(key, value);
     }
 
+    // Same rule as the store: never replace a cached entry with an older version
+    public synchronized void putIfNewer(String key, VersionedValue value) {
+        VersionedValue current = cache.get(key);
+        if (current == null || current.getVersion() <= value.getVersion()) {
+            cache.put(key, value);
+        }
+    }
+
     public synchronized void remove(String key) {
         cache.remove(key);
     }
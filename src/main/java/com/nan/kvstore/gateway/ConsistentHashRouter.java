@@ -15,7 +15,7 @@ public class ConsistentHashRouter {
 
     // For RF=3, return: primary + next 2 nodes (circular)
     public List<String> pickReplicaNodes(String key, int rf) {
-        int primaryIdx = Math.floorMod(hashToInt(key), nodes.size());
+        int primaryIdx = primaryIndex(key);
 
         List<String> replicas = new ArrayList<>();
         for (int i = 0; i < rf; i++) {
@@ -29,6 +29,24 @@ public class ConsistentHashRouter {
         return pickReplicaNodes(key, 1).get(0);
     }
 
+    // Sloppy quorum: the nodes that come after the rf replicas on the ring (circular),
+    // in the order they should be tried as stand-ins for a replica that is down.
+    // Empty when the cluster has no more than rf nodes.
+    public List<String> pickFallbackNodes(String key, int rf) {
+        int primaryIdx = primaryIndex(key);
+
+        List<String> fallbacks = new ArrayList<>();
+        for (int i = rf; i < nodes.size(); i++) {
+            int idx = (primaryIdx + i) % nodes.size();
+            fallbacks.add(nodes.get(idx));
+        }
+        return fallbacks;
+    }
+
+    private int primaryIndex(String key) {
+        return Math.floorMod(hashToInt(key), nodes.size());
+    }
+
     private int hashToInt(String key) {
         try {
             MessageDigest md = MessageDigest.getInstance("SHA-256");
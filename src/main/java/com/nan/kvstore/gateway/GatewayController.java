@@ -1,41 +1,47 @@
 package com.nan.kvstore.gateway;
 
+import java.nio.charset.StandardCharsets;
 import java.time.Instant;
 import java.util.ArrayList;
 import java.util.Comparator;
+import java.util.Iterator;
 import java.util.LinkedHashMap;
 import java.util.List;
 import java.util.Map;
 import java.util.concurrent.ConcurrentHashMap;
-import java.util.concurrent.ConcurrentLinkedDeque;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
 
-import org.springframework.http.HttpMethod;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.http.MediaType;
 import org.springframework.http.ResponseEntity;
 import org.springframework.web.bind.annotation.GetMapping;
 import org.springframework.web.bind.annotation.PostMapping;
 import org.springframework.web.bind.annotation.PutMapping;
+import org.springframework.web.bind.annotation.RequestBody;
 import org.springframework.web.bind.annotation.RequestMapping;
 import org.springframework.web.bind.annotation.RequestParam;
 import org.springframework.web.bind.annotation.RestController;
+import org.springframework.web.client.HttpStatusCodeException;
 import org.springframework.web.client.RestClientException;
-import org.springframework.web.client.RestTemplate;
 
-import com.nan.kvstore.model.VersionedValue;
+import com.nan.kvstore.protocol.KvFrame;
+import com.nan.kvstore.protocol.NodeClient;
+import com.nan.kvstore.service.HintedHandoffService;
 
 @RestController
 @RequestMapping("/gkv")
 public class GatewayController {
 
-    private final RestTemplate restTemplate = new RestTemplate();
+    private final NodeClient client;
 
-    // All nodes in cluster
-    private final List<String> allNodes = List.of(
-            "http://localhost:8081",
-            "http://localhost:8082",
-            "http://localhost:8083"
-    );
+    // All nodes in cluster (kv.nodes in application.properties).
+    // Nodes beyond the first N on a key's ring walk act as sloppy-quorum fallbacks.
+    private final List<String> allNodes;
 
-    private final ConsistentHashRouter router = new ConsistentHashRouter(allNodes);
+    private final ConsistentHashRouter router;
 
     // Quorum config (defaults)
     private static final int N = 3;
@@ -43,7 +49,7 @@ public class GatewayController {
     private static final int DEFAULT_R = 2;
 
     // Debug build string (helps confirm correct gateway instance)
-    private static final String GATEWAY_BUILD = "GATEWAY_6C_HINTED_HANDOFF_v1";
+    private static final String GATEWAY_BUILD = "GATEWAY_8_SLOPPY_QUORUM_v1";
 
     /*
       Health table maintained by gateway:
@@ -52,12 +58,32 @@ public class GatewayController {
     private final Map<String, Boolean> nodeHealth = new ConcurrentHashMap<>();
 
     /*
-      Hinted handoff store:
-      hintsByNode[targetNode] = deque of missed writes that should be delivered later
+      Hinted handoff store for writes no fallback could take (bounded, with TTL).
+      The same service delivers them once the target node is back.
     */
-    private final Map<String, ConcurrentLinkedDeque<Hint>> hintsByNode = new ConcurrentHashMap<>();
+    private final HintedHandoffService handoff;
+
+    // Runs the per-replica writes of quorumWrite in parallel (daemon threads, like the health loop)
+    private final ExecutorService replicaWriters = Executors.newCachedThreadPool(r -> {
+        Thread t = new Thread(r, "replica-writer");
+        t.setDaemon(true);
+        return t;
+    });
+
+    @Autowired
+    public GatewayController(@Value("${kv.nodes}") List<String> allNodes, NodeClient client,
+                             HintedHandoffService handoff) {
+        this(allNodes, client, handoff, true);
+    }
+
+    // Tests: no background health thread
+    GatewayController(List<String> allNodes, NodeClient client, HintedHandoffService handoff,
+                      boolean startBackgroundThreads) {
+        this.allNodes = List.copyOf(allNodes);
+        this.router = new ConsistentHashRouter(this.allNodes);
+        this.client = client;
+        this.handoff = handoff;
 
-    public GatewayController() {
         // initialize health to true so startup isn't blocked
         for (String n : allNodes) {
             nodeHealth.put(n, true);
@@ -66,15 +92,12 @@ public class GatewayController {
         System.out.println("[Gateway] Started " + GATEWAY_BUILD + " at " + Instant.now());
         System.out.println("[Gateway] Nodes=" + allNodes);
 
+        if (!startBackgroundThreads) return;
+
         // Background thread: ping nodes every 2 seconds
         Thread healthThread = new Thread(this::healthLoop);
         healthThread.setDaemon(true);
         healthThread.start();
-
-        // Background thread: try hinted handoff delivery every 2 seconds
-        Thread handoffThread = new Thread(this::handoffLoop);
-        handoffThread.setDaemon(true);
-        handoffThread.start();
     }
 
     // ------------------ Debug: confirm correct gateway ------------------
@@ -87,7 +110,7 @@ public class GatewayController {
     private void healthLoop() {
         while (true) {
             for (String node : allNodes) {
-                nodeHealth.put(node, isNodeUp(node));
+                nodeHealth.put(node, client.isUp(node));
             }
 
             try {
@@ -97,16 +120,6 @@ public class GatewayController {
         }
     }
 
-    private boolean isNodeUp(String nodeBaseUrl) {
-        try {
-            String url = nodeBaseUrl + "/kv/health";
-            ResponseEntity<String> resp = restTemplate.exchange(url, HttpMethod.GET, null, String.class);
-            return resp.getStatusCode().is2xxSuccessful();
-        } catch (Exception e) {
-            return false;
-        }
-    }
-
     // For debugging: see which nodes are currently UP/DOWN
     @GetMapping("/cluster/health")
     public ResponseEntity<Map<String, Boolean>> clusterHealth() {
@@ -117,31 +130,16 @@ public class GatewayController {
         return ResponseEntity.ok(snapshot);
     }
 
-    // ------------------ HINTED HANDOFF LOOP ------------------
-    // Periodically tries to deliver queued hints to nodes that are healthy again.
-    private void handoffLoop() {
-        while (true) {
-            try {
-                flushHintsInternal();
-                Thread.sleep(2000);
-            } catch (InterruptedException ignored) {
-            } catch (Exception ignored) {
-                // keep loop alive even if something unexpected happens
-            }
-        }
-    }
-
-    private void addHint(String targetNode, Hint hint) {
-        hintsByNode.computeIfAbsent(targetNode, k -> new ConcurrentLinkedDeque<>()).add(hint);
-    }
+    // ------------------ HINTED HANDOFF ------------------
+    // Local hints live in HintedHandoffService, which delivers them in the background.
 
     // Debug: how many hints are pending per node
     @GetMapping("/handoff/pending")
     public ResponseEntity<Map<String, Integer>> pendingHints() {
+        Map<String, Integer> held = handoff.pending();
         Map<String, Integer> out = new LinkedHashMap<>();
         for (String n : allNodes) {
-            ConcurrentLinkedDeque<Hint> q = hintsByNode.get(n);
-            out.put(n, q == null ? 0 : q.size());
+            out.put(n, held.getOrDefault(n, 0));
         }
         return ResponseEntity.ok(out);
     }
@@ -149,148 +147,226 @@ public class GatewayController {
     // Manual flush endpoint (in addition to background loop)
     @PostMapping("/handoff/flush")
     public ResponseEntity<String> flushHints() {
-        FlushResult r = flushHintsInternal();
-        return ResponseEntity.ok("HINTED HANDOFF FLUSHED. delivered=" + r.delivered + " remaining=" + r.remaining);
+        int delivered = handoff.flush();
+        int remaining = handoff.pending().values().stream().mapToInt(Integer::intValue).sum();
+        return ResponseEntity.ok("HINTED HANDOFF FLUSHED. delivered=" + delivered + " remaining=" + remaining);
     }
 
-    private FlushResult flushHintsInternal() {
-        int delivered = 0;
-        int remaining = 0;
-
-        for (String node : allNodes) {
-            // Only attempt delivery if node is healthy now
-            if (!Boolean.TRUE.equals(nodeHealth.get(node))) {
-                // count remaining without modifying queue
-                ConcurrentLinkedDeque<Hint> q = hintsByNode.get(node);
-                if (q != null) remaining += q.size();
-                continue;
-            }
-
-            ConcurrentLinkedDeque<Hint> q = hintsByNode.get(node);
-            if (q == null || q.isEmpty()) continue;
+    // ------------------ PUT (quorum write + hinted handoff) ------------------
+    @PutMapping("/put")
+    public ResponseEntity<String> put(@RequestParam String key,
+                                      @RequestParam String value,
+                                      @RequestParam(defaultValue = "" + DEFAULT_W) int w) {
 
-            // Deliver in FIFO order
-            int triesThisNode = q.size();
-            for (int i = 0; i < triesThisNode; i++) {
-                Hint h = q.pollFirst();
-                if (h == null) break;
+        if (!KvFrame.isValidKey(key)) {
+            return ResponseEntity.badRequest().body("KEY TOO LONG (max 65535 UTF-8 bytes)");
+        }
 
-                String url = node + "/kv/put?key=" + h.key + "&value=" + h.value + "&version=" + h.version;
-                try {
-                    restTemplate.exchange(url, HttpMethod.PUT, null, VersionedValue.class);
-                    delivered++;
-                } catch (RestClientException e) {
-                    // Still failing -> re-queue at end
-                    q.addLast(h);
-                    remaining++;
-                }
-            }
+        WriteResult res = quorumWrite(key, value.getBytes(StandardCharsets.UTF_8), w);
 
-            if (q.isEmpty()) {
-                hintsByNode.remove(node);
-            } else {
-                remaining += q.size();
-            }
+        // Fail fast if quorum not satisfied
+        if (!res.ok()) {
+            return ResponseEntity.status(503).body(
+                    "WRITE FAILED (need w=" + res.w + "). version=" + res.version +
+                            " Success=" + res.successes +
+                            " Fallback=" + res.fallbacks +
+                            " Fail=" + res.failures +
+                            " HintsQueuedFor=" + res.queuedHints +
+                            (res.droppedHints.isEmpty() ? "" : " HintsDroppedFor=" + res.droppedHints) +
+                            " Replicas=" + res.replicas +
+                            " HealthTable=" + clusterHealth().getBody()
+            );
         }
 
-        return new FlushResult(delivered, remaining);
+        return ResponseEntity.ok(
+                "WRITE QUORUM OK (w=" + res.w + "). version=" + res.version +
+                        " Success=" + res.successes +
+                        (res.fallbacks.isEmpty() ? "" : " Fallback=" + res.fallbacks) +
+                        (res.queuedHints.isEmpty() ? "" : " HintsQueuedFor=" + res.queuedHints) +
+                        (res.droppedHints.isEmpty() ? "" : " HintsDroppedFor=" + res.droppedHints) +
+                        " Replicas=" + res.replicas
+        );
     }
 
-    private static class FlushResult {
-        int delivered;
-        int remaining;
-        FlushResult(int delivered, int remaining) {
-            this.delivered = delivered;
-            this.remaining = remaining;
+    // Binary put for clients: body = KvFrame (key + raw value; the gateway assigns the version)
+    // PUT /gkv/bin/put?w=2 -> ack frame (key, version, empty value), or 503 if quorum not met
+    @PutMapping(value = "/bin/put", consumes = MediaType.APPLICATION_OCTET_STREAM_VALUE,
+            produces = MediaType.APPLICATION_OCTET_STREAM_VALUE)
+    public ResponseEntity<byte[]> putBinary(@RequestBody byte[] body,
+                                            @RequestParam(defaultValue = "" + DEFAULT_W) int w) {
+        KvFrame frame;
+        try {
+            frame = KvFrame.decode(body);
+        } catch (IllegalArgumentException e) {
+            return ResponseEntity.badRequest().build();
         }
-    }
 
-    // ------------------ PUT (quorum write + hinted handoff) ------------------
-    @PutMapping("/put")
-    public ResponseEntity<String> put(@RequestParam String key,
-                                      @RequestParam String value,
-                                      @RequestParam(defaultValue = "" + DEFAULT_W) int w) {
+        WriteResult res = quorumWrite(frame.getKey(), frame.getValue(), w);
+        if (!res.ok()) return ResponseEntity.status(503).build();
 
+        return ResponseEntity.ok(KvFrame.encodeKey(frame.getKey(), res.version));
+    }
+
+    WriteResult quorumWrite(String key, byte[] value, int w) {
         if (w < 1) w = 1;
         if (w > N) w = N;
 
         long version = System.currentTimeMillis();
 
+        // Encode once (KvFrame body, no query string); every replica and every hint shares this buffer
+        byte[] frame = KvFrame.encode(key, version, value);
+
         // Intended replicas for this key (based on consistent hashing ring)
         List<String> replicas = router.pickReplicaNodes(key, N);
 
-        List<String> successes = new ArrayList<>();
-        List<String> queuedHints = new ArrayList<>();
-        List<String> failures = new ArrayList<>();
+        // Stand-ins for down replicas, in ring order. Each fallback is used at most once per write.
+        Iterator<String> fallbacks = router.pickFallbackNodes(key, N).iterator();
+
+        WriteResult res = new WriteResult(w, version, replicas);
 
-        // Important: we always consider ALL intended replicas for hints.
-        // We only attempt network calls to healthy nodes.
+        // Important: we always consider ALL intended replicas, in parallel.
+        // Every one of the N replicas gets the write (directly, via a fallback, or as a local hint),
+        // otherwise a skipped replica serves stale reads. We answer as soon as w of them acked;
+        // the slower ones finish in the background.
         for (String node : replicas) {
-            boolean healthy = Boolean.TRUE.equals(nodeHealth.get(node));
+            replicaWriters.execute(() -> {
+                try {
+                    writeReplica(node, frame, fallbacks, res);
+                } finally {
+                    res.replicaDone();
+                }
+            });
+        }
 
-            if (!healthy) {
-                // node is down -> queue hint so it can catch up when it returns
-                addHint(node, new Hint(key, value, version, System.currentTimeMillis()));
-                queuedHints.add(node);
-                continue;
-            }
+        try {
+            res.awaitQuorum();
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+        return res;
+    }
 
-            // node healthy -> attempt write
-            String url = node + "/kv/put?key=" + key + "&value=" + value + "&version=" + version;
+    // One replica's share of a write. We only attempt direct network calls to healthy nodes.
+    private void writeReplica(String node, byte[] frame, Iterator<String> fallbacks, WriteResult res) {
+        if (Boolean.TRUE.equals(nodeHealth.get(node))) {
             try {
-                restTemplate.exchange(url, HttpMethod.PUT, null, VersionedValue.class);
-                successes.add(node);
-
-                // optimization: once quorum is met, we can stop trying more healthy nodes
-                // BUT we must still queue hints for any remaining unhealthy replicas,
-                // which we already do above based on health table.
-                if (successes.size() >= w) {
-                    // we can stop here, but there could be more healthy nodes we would have tried.
-                    // In Dynamo, a coordinator may do full replication asynchronously.
-                    // For this project, quorum is enough for success.
-                }
+                client.put(node, frame);
+                res.successes.add(node);
+                return;
             } catch (RestClientException e) {
-                // write failed even though we thought node is healthy -> treat as down and queue hint
+                // write failed even though we thought node is healthy -> treat as down
                 nodeHealth.put(node, false);
-                addHint(node, new Hint(key, value, version, System.currentTimeMillis()));
-                failures.add(node);
-                queuedHints.add(node);
+                res.failures.add(node);
             }
+        }
+
+        // Sloppy quorum: next healthy node on the ring holds the write for this replica
+        // and counts toward w; it hands the data back when the replica recovers.
+        String fallback = writeToFallback(node, frame, fallbacks);
+        if (fallback != null) {
+            res.fallbacks.add(node + "->" + fallback);
+        } else if (handoff.addHint(node, frame)) {
+            // no fallback available -> queue hint locally so it can catch up when it returns
+            res.queuedHints.add(node);
+        } else {
+            // local hint queue for this node is full -> read repair is its only way to catch up
+            res.droppedHints.add(node);
+        }
+    }
 
-            if (successes.size() >= w) {
-                // stop attempting further healthy replicas once quorum is satisfied
-                // (replication to remaining replicas happens via hinted handoff when needed)
-                // NOTE: this makes write latency smaller in failure cases.
-                break;
+    // Returns the fallback that accepted the hint, or null if none could
+    private String writeToFallback(String owner, byte[] frame, Iterator<String> fallbacks) {
+        String fallback;
+        while ((fallback = nextFallback(fallbacks)) != null) {
+            if (!Boolean.TRUE.equals(nodeHealth.get(fallback))) continue;
+
+            try {
+                client.putHint(fallback, owner, frame);
+                return fallback;
+            } catch (HttpStatusCodeException e) {
+                // fallback is up but refused (e.g. its hint queue is full) -> just try the next one
+            } catch (RestClientException e) {
+                nodeHealth.put(fallback, false);
             }
         }
+        return null;
+    }
+
+    // Replica tasks of one write share the iterator, so each fallback is still handed out only once
+    private static String nextFallback(Iterator<String> fallbacks) {
+        synchronized (fallbacks) {
+            return fallbacks.hasNext() ? fallbacks.next() : null;
+        }
+    }
 
-        // Fail fast if quorum not satisfied
-        if (successes.size() < w) {
+    // ------------------ GET (health-aware quorum read + newest + read repair) ------------------
+    @GetMapping("/get")
+    public ResponseEntity<String> get(@RequestParam String key,
+                                      @RequestParam(defaultValue = "" + DEFAULT_R) int r,
+                                      @RequestParam(defaultValue = "true") boolean repair) {
+
+        if (!KvFrame.isValidKey(key)) {
+            return ResponseEntity.badRequest().body("KEY TOO LONG (max 65535 UTF-8 bytes)");
+        }
+
+        ReadResult res = quorumRead(key, r, repair);
+
+        if (res.healthy.size() < res.r) {
             return ResponseEntity.status(503).body(
-                    "WRITE FAILED (need w=" + w + "). version=" + version +
-                            " Success=" + successes +
-                            " Fail=" + failures +
-                            " HintsQueuedFor=" + queuedHints +
-                            " Replicas=" + replicas +
+                    "READ FAILED FAST. Not enough healthy replicas for r=" + res.r +
+                            ". Healthy=" + res.healthy +
+                            " Replicas=" + res.replicas +
                             " HealthTable=" + clusterHealth().getBody()
             );
         }
 
+        if (!res.ok()) {
+            return ResponseEntity.status(500).body(
+                    "READ FAILED (need r=" + res.r + "). Only got " + res.reads.size() +
+                            " SuccessfulReads=" + res.reads +
+                            " HealthyCandidates=" + res.healthy
+            );
+        }
+
+        if (res.newest == null) {
+            return ResponseEntity.status(404).body(
+                    "KEY NOT FOUND (r=" + res.r + "). Reads=" + res.reads +
+                            " HealthyCandidates=" + res.healthy
+            );
+        }
+
         return ResponseEntity.ok(
-                "WRITE QUORUM OK (w=" + w + "). version=" + version +
-                        " Success=" + successes +
-                        (queuedHints.isEmpty() ? "" : " HintsQueuedFor=" + queuedHints) +
-                        " Replicas=" + replicas
+                "READ QUORUM OK (r=" + res.r + "). NewestFrom=" + res.newest.node +
+                        " version=" + res.newest.value.getVersion() +
+                        " value=" + new String(res.newest.value.getValue(), StandardCharsets.UTF_8) +
+                        " HealthyCandidates=" + res.healthy
         );
     }
 
-    // ------------------ GET (health-aware quorum read + newest + read repair) ------------------
-    @GetMapping("/get")
-    public ResponseEntity<String> get(@RequestParam String key,
-                                      @RequestParam(defaultValue = "" + DEFAULT_R) int r,
-                                      @RequestParam(defaultValue = "true") boolean repair) {
+    // Binary get for clients: body = KvFrame with the key (value empty)
+    // POST /gkv/bin/get?r=2 -> newest KvFrame (key, version, raw value), 503/500 if quorum not met
+    @PostMapping(value = "/bin/get", consumes = MediaType.APPLICATION_OCTET_STREAM_VALUE,
+            produces = MediaType.APPLICATION_OCTET_STREAM_VALUE)
+    public ResponseEntity<byte[]> getBinary(@RequestBody byte[] body,
+                                            @RequestParam(defaultValue = "" + DEFAULT_R) int r,
+                                            @RequestParam(defaultValue = "true") boolean repair) {
+        KvFrame request;
+        try {
+            request = KvFrame.decode(body);
+        } catch (IllegalArgumentException e) {
+            return ResponseEntity.badRequest().build();
+        }
+
+        ReadResult res = quorumRead(request.getKey(), r, repair);
+        if (res.healthy.size() < res.r) return ResponseEntity.status(503).build();
+        if (!res.ok()) return ResponseEntity.status(500).build();
+        if (res.newest == null) return ResponseEntity.notFound().build();
+
+        // Node's frame is passed through untouched
+        return ResponseEntity.ok(res.newest.frame);
+    }
 
+    private ReadResult quorumRead(String key, int r, boolean repair) {
         if (r < 1) r = 1;
         if (r > N) r = N;
 
@@ -302,76 +378,117 @@ public class GatewayController {
             if (Boolean.TRUE.equals(nodeHealth.get(node))) healthy.add(node);
         }
 
-        if (healthy.size() < r) {
-            return ResponseEntity.status(503).body(
-                    "READ FAILED FAST. Not enough healthy replicas for r=" + r +
-                            ". Healthy=" + healthy +
-                            " Replicas=" + replicas +
-                            " HealthTable=" + clusterHealth().getBody()
-            );
-        }
+        ReadResult res = new ReadResult(r, replicas, healthy);
+        if (healthy.size() < r) return res;
 
-        List<ReplicaRead> reads = new ArrayList<>();
+        byte[] keyFrame = KvFrame.encodeKey(key, KvFrame.NO_VERSION);
 
         for (String node : healthy) {
-            if (reads.size() >= r) break;
+            if (res.reads.size() >= r) break;
 
-            String url = node + "/kv/get?key=" + key;
             try {
-                ResponseEntity<VersionedValue> resp =
-                        restTemplate.exchange(url, HttpMethod.GET, null, VersionedValue.class);
-
-                if (resp.getStatusCode().is2xxSuccessful() && resp.getBody() != null) {
-                    reads.add(new ReplicaRead(node, resp.getBody()));
-                }
-            } catch (RestClientException ignored) {
+                byte[] frame = client.get(node, keyFrame);
+                // A 404 is still a successful read (the replica just has no value), not a node failure
+                res.reads.add(new ReplicaRead(node, frame, frame == null ? null : KvFrame.decode(frame)));
+            } catch (RestClientException | IllegalArgumentException ignored) {
                 // If a healthy node suddenly fails, mark it down
                 nodeHealth.put(node, false);
             }
         }
 
-        if (reads.size() < r) {
-            return ResponseEntity.status(500).body(
-                    "READ FAILED (need r=" + r + "). Only got " + reads.size() +
-                            " SuccessfulReads=" + reads +
-                            " HealthyCandidates=" + healthy
-            );
-        }
+        if (!res.ok()) return res;
 
-        ReplicaRead newest = reads.stream()
+        ReplicaRead newest = res.reads.stream()
+                .filter(rr -> rr.value != null)
                 .max(Comparator.comparingLong(rr -> rr.value.getVersion()))
-                .get();
+                .orElse(null);
+        res.newest = newest;
+        if (newest == null) return res; // no replica has the key
 
-        // Read repair among the replicas we successfully contacted
+        // Read repair among the replicas we successfully contacted.
+        // The newest node's frame already carries key + version + value, so it is forwarded as-is.
         if (repair) {
-            for (ReplicaRead rr : reads) {
-                if (rr.value.getVersion() < newest.value.getVersion()) {
-                    String repairUrl = rr.node + "/kv/put?key=" + key
-                            + "&value=" + newest.value.getValue()
-                            + "&version=" + newest.value.getVersion();
+            for (ReplicaRead rr : res.reads) {
+                if (rr.value == null || rr.value.getVersion() < newest.value.getVersion()) {
                     try {
-                        restTemplate.exchange(repairUrl, HttpMethod.PUT, null, VersionedValue.class);
+                        client.put(rr.node, newest.frame);
                     } catch (RestClientException ignored) {
                     }
                 }
             }
         }
 
-        return ResponseEntity.ok(
-                "READ QUORUM OK (r=" + r + "). NewestFrom=" + newest.node +
-                        " version=" + newest.value.getVersion() +
-                        " value=" + newest.value.getValue() +
-                        " HealthyCandidates=" + healthy
-        );
+        return res;
     }
 
     // ------------------ Helper types ------------------
+    static class WriteResult {
+        int w;
+        long version;
+        List<String> replicas;
+        // Filled by the replica tasks; once quorumWrite returns, writes still in flight may add more
+        List<String> successes = new CopyOnWriteArrayList<>();
+        List<String> fallbacks = new CopyOnWriteArrayList<>();   // "owner->fallback" sloppy-quorum writes
+        List<String> queuedHints = new CopyOnWriteArrayList<>();
+        List<String> droppedHints = new CopyOnWriteArrayList<>();
+        List<String> failures = new CopyOnWriteArrayList<>();
+        private int pendingReplicas;
+
+        WriteResult(int w, long version, List<String> replicas) {
+            this.w = w;
+            this.version = version;
+            this.replicas = replicas;
+            this.pendingReplicas = replicas.size();
+        }
+
+        // fallback writes count toward w (sloppy quorum)
+        boolean ok() {
+            return successes.size() + fallbacks.size() >= w;
+        }
+
+        // A replica task has its outcome (ack, fallback, hint or drop)
+        synchronized void replicaDone() {
+            pendingReplicas--;
+            notifyAll();
+        }
+
+        // Until w acks arrived, or every replica is done and quorum is out of reach
+        synchronized void awaitQuorum() throws InterruptedException {
+            while (!ok() && pendingReplicas > 0) wait();
+        }
+
+        // Until every replica is done (tests)
+        synchronized void awaitAll() throws InterruptedException {
+            while (pendingReplicas > 0) wait();
+        }
+    }
+
+    private static class ReadResult {
+        int r;
+        List<String> replicas;
+        List<String> healthy;
+        List<ReplicaRead> reads = new ArrayList<>();
+        ReplicaRead newest; // null unless r reads succeeded and at least one replica has the key
+
+        ReadResult(int r, List<String> replicas, List<String> healthy) {
+            this.r = r;
+            this.replicas = replicas;
+            this.healthy = healthy;
+        }
+
+        boolean ok() {
+            return reads.size() >= r;
+        }
+    }
+
     private static class ReplicaRead {
         String node;
-        VersionedValue value;
+        byte[] frame;   // raw frame as returned by the node (reused for read repair)
+        KvFrame value;
 
-        ReplicaRead(String node, VersionedValue value) {
+        ReplicaRead(String node, byte[] frame, KvFrame value) {
             this.node = node;
+            this.frame = frame;
             this.value = value;
         }
 
@@ -380,18 +497,4 @@ public class GatewayController {
             return "{node=" + node + ", version=" + (value == null ? "null" : value.getVersion()) + "}";
         }
     }
-
-    private static class Hint {
-        String key;
-        String value;
-        long version;
-        long createdAtMs;
-
-        Hint(String key, String value, long version, long createdAtMs) {
-            this.key = key;
-            this.value = value;
-            this.version = version;
-            this.createdAtMs = createdAtMs;
-        }
-    }
 }
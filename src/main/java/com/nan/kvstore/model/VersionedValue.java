@@ -1,25 +1,34 @@
 package com.nan.kvstore.model;
 
+import java.nio.charset.StandardCharsets;
+
 /*
   VersionedValue is what we store for each key.
-  - value: the actual string value
+  - value: the actual value, kept as raw bytes (JSON endpoints see it as a UTF-8 string)
   - version: a number that increases when the value is updated
 */
 public class VersionedValue {
-    private String value;
+    private byte[] data;
     private long version;
 
     // Default constructor required by Spring/Jackson for JSON serialization
     public VersionedValue() {}
 
     public VersionedValue(String value, long version) {
-        this.value = value;
+        this(value == null ? null : value.getBytes(StandardCharsets.UTF_8), version);
+    }
+
+    public VersionedValue(byte[] data, long version) {
+        this.data = data;
         this.version = version;
     }
 
-    public String getValue() { return value; }
+    public String getValue() { return data == null ? null : new String(data, StandardCharsets.UTF_8); }
     public long getVersion() { return version; }
 
-    public void setValue(String value) { this.value = value; }
+    public void setValue(String value) { this.data = value == null ? null : value.getBytes(StandardCharsets.UTF_8); }
     public void setVersion(long version) { this.version = version; }
+
+    // Raw bytes for the binary protocol (not a bean property, so JSON only shows "value")
+    public byte[] rawValue() { return data; }
 }
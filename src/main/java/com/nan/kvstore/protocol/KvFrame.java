@@ -0,0 +1,89 @@
+package com.nan.kvstore.protocol;
+
+import java.nio.BufferUnderflowException;
+import java.nio.ByteBuffer;
+import java.nio.charset.StandardCharsets;
+
+/*
+  KvFrame is the compact binary message used by the body-based put/get endpoints
+  (gateway -> node and client -> gateway). Values travel as raw bytes, so they are
+  not limited by URL length and never need URL encoding.
+
+  Layout (big-endian):
+    [2 bytes key length][key, UTF-8][8 bytes version][4 bytes value length][value bytes]
+
+  On put, version = NO_VERSION means "assign one for me".
+  A get request is just a frame with the key and an empty value.
+*/
+public final class KvFrame {
+
+    public static final long NO_VERSION = -1L;
+
+    private static final int MAX_KEY_BYTES = 0xFFFF;
+    private static final int HEADER_BYTES = 2 + 8 + 4;
+    private static final byte[] EMPTY = new byte[0];
+
+    private final String key;
+    private final long version;
+    private final byte[] value;
+
+    private KvFrame(String key, long version, byte[] value) {
+        this.key = key;
+        this.version = version;
+        this.value = value;
+    }
+
+    public String getKey() { return key; }
+    public long getVersion() { return version; }
+    public byte[] getValue() { return value; }
+
+    // Keys longer than the 2-byte length field can't be framed
+    public static boolean isValidKey(String key) {
+        return key != null && key.getBytes(StandardCharsets.UTF_8).length <= MAX_KEY_BYTES;
+    }
+
+    public static byte[] encode(String key, long version, byte[] value) {
+        byte[] keyBytes = key.getBytes(StandardCharsets.UTF_8);
+        if (keyBytes.length > MAX_KEY_BYTES) {
+            throw new IllegalArgumentException("key too long: " + keyBytes.length + " bytes");
+        }
+        if (value == null) value = EMPTY;
+
+        ByteBuffer buf = ByteBuffer.allocate(HEADER_BYTES + keyBytes.length + value.length);
+        buf.putShort((short) keyBytes.length);
+        buf.put(keyBytes);
+        buf.putLong(version);
+        buf.putInt(value.length);
+        buf.put(value);
+        return buf.array();
+    }
+
+    // Frame carrying only a key (used for get requests and put acks)
+    public static byte[] encodeKey(String key, long version) {
+        return encode(key, version, EMPTY);
+    }
+
+    public static KvFrame decode(byte[] frame) {
+        if (frame == null) throw new IllegalArgumentException("empty frame");
+        try {
+            ByteBuffer buf = ByteBuffer.wrap(frame);
+
+            int keyLen = buf.getShort() & 0xFFFF;
+            String key = new String(frame, buf.position(), keyLen, StandardCharsets.UTF_8);
+            buf.position(buf.position() + keyLen);
+
+            long version = buf.getLong();
+
+            int valueLen = buf.getInt();
+            if (valueLen < 0 || valueLen != buf.remaining()) {
+                throw new IllegalArgumentException("bad value length " + valueLen + ", remaining=" + buf.remaining());
+            }
+            byte[] value = new byte[valueLen];
+            buf.get(value);
+
+            return new KvFrame(key, version, value);
+        } catch (BufferUnderflowException | IndexOutOfBoundsException e) {
+            throw new IllegalArgumentException("truncated frame (" + frame.length + " bytes)", e);
+        }
+    }
+}
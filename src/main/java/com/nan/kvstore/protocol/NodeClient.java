@@ -0,0 +1,82 @@
+package com.nan.kvstore.protocol;
+
+import java.time.Duration;
+
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.http.HttpEntity;
+import org.springframework.http.HttpHeaders;
+import org.springframework.http.HttpMethod;
+import org.springframework.http.MediaType;
+import org.springframework.http.ResponseEntity;
+import org.springframework.http.client.SimpleClientHttpRequestFactory;
+import org.springframework.stereotype.Component;
+import org.springframework.web.client.HttpClientErrorException;
+import org.springframework.web.client.RestTemplate;
+
+/*
+  NodeClient is the single HTTP client for node traffic: gateway -> node, and fallback -> owner
+  during hinted handoff. Values travel as KvFrame bodies.
+
+  Timeouts come from kv.http.connect-timeout-ms / kv.http.read-timeout-ms. A node slower than
+  that fails the call with a RestClientException, so callers treat it like a down node.
+  Note the read timeout also bounds how long one value may take to transfer.
+*/
+@Component
+public class NodeClient {
+
+    private final RestTemplate restTemplate;
+
+    @Autowired
+    public NodeClient(@Value("${kv.http.connect-timeout-ms}") int connectTimeoutMs,
+                      @Value("${kv.http.read-timeout-ms}") int readTimeoutMs) {
+        this(newRestTemplate(connectTimeoutMs, readTimeoutMs));
+    }
+
+    // Tests: stubbed RestTemplate
+    public NodeClient(RestTemplate restTemplate) {
+        this.restTemplate = restTemplate;
+    }
+
+    private static RestTemplate newRestTemplate(int connectTimeoutMs, int readTimeoutMs) {
+        SimpleClientHttpRequestFactory factory = new SimpleClientHttpRequestFactory();
+        factory.setConnectTimeout(Duration.ofMillis(connectTimeoutMs));
+        factory.setReadTimeout(Duration.ofMillis(readTimeoutMs));
+        return new RestTemplate(factory);
+    }
+
+    private static HttpEntity<byte[]> octetEntity(byte[] body) {
+        HttpHeaders headers = new HttpHeaders();
+        headers.setContentType(MediaType.APPLICATION_OCTET_STREAM);
+        return new HttpEntity<>(body, headers);
+    }
+
+    public boolean isUp(String node) {
+        try {
+            ResponseEntity<String> resp = restTemplate.exchange(node + "/kv/health", HttpMethod.GET, null, String.class);
+            return resp.getStatusCode().is2xxSuccessful();
+        } catch (Exception e) {
+            return false;
+        }
+    }
+
+    public void put(String node, byte[] frame) {
+        restTemplate.exchange(node + "/kv/bin/put", HttpMethod.PUT, octetEntity(frame), byte[].class);
+    }
+
+    // Sloppy quorum: ask a fallback node to hold this write for the down owner
+    public void putHint(String fallback, String owner, byte[] frame) {
+        restTemplate.exchange(fallback + "/kv/bin/hint?owner={owner}", HttpMethod.PUT, octetEntity(frame),
+                byte[].class, owner);
+    }
+
+    // Returns the node's frame, or null when the node answered 404 (it doesn't have the key)
+    public byte[] get(String node, byte[] keyFrame) {
+        try {
+            return restTemplate.exchange(node + "/kv/bin/get", HttpMethod.POST, octetEntity(keyFrame), byte[].class)
+                    .getBody();
+        } catch (HttpClientErrorException.NotFound e) {
+            return null;
+        }
+    }
+}
@@ -0,0 +1,139 @@
+package com.nan.kvstore.service;
+
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.LinkedBlockingDeque;
+
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Service;
+import org.springframework.web.client.RestClientException;
+
+import com.nan.kvstore.protocol.NodeClient;
+
+/*
+  Hinted handoff store, used in two places:
+  - On a fallback node (sloppy quorum): when a replica is down, the gateway writes to the next
+    healthy node on the ring instead. That node keeps the write here - separate from its own
+    store, so it never serves reads for keys it doesn't own.
+  - On the gateway, for writes no fallback could take.
+  Either way the hint is handed back to the owner once the owner is up again.
+
+  hintsByOwner[ownerNodeUrl] = bounded deque of hints waiting for delivery (FIFO)
+  Only nodes listed in kv.nodes are accepted as owners, and hints expire after HINT_TTL_MS
+  (the owner catches up through read repair after that).
+*/
+@Service
+public class HintedHandoffService {
+
+    static final int MAX_HINTS_PER_OWNER = 10_000;
+    static final long HINT_TTL_MS = 3 * 60 * 60 * 1000L; // 3 hours
+
+    private final NodeClient client;
+
+    private final Set<String> knownNodes;
+
+    private final Map<String, LinkedBlockingDeque<Hint>> hintsByOwner = new ConcurrentHashMap<>();
+
+    @Autowired
+    public HintedHandoffService(@Value("${kv.nodes}") List<String> knownNodes, NodeClient client) {
+        this(knownNodes, client, true);
+    }
+
+    // Tests: no background handoff thread
+    public HintedHandoffService(List<String> knownNodes, NodeClient client, boolean startHandoffLoop) {
+        this.knownNodes = Set.copyOf(knownNodes);
+        this.client = client;
+
+        if (!startHandoffLoop) return;
+
+        // Background thread: try to hand hints back to their owners every 2 seconds
+        Thread handoffThread = new Thread(this::handoffLoop);
+        handoffThread.setDaemon(true);
+        handoffThread.start();
+    }
+
+    // Returns false if this owner already has MAX_HINTS_PER_OWNER hints queued.
+    // Throws IllegalArgumentException if owner is not a cluster node.
+    public boolean addHint(String owner, byte[] frame) {
+        if (!knownNodes.contains(owner)) {
+            throw new IllegalArgumentException("unknown owner node: " + owner);
+        }
+        return hintsByOwner.computeIfAbsent(owner, k -> new LinkedBlockingDeque<>(MAX_HINTS_PER_OWNER))
+                .offerLast(new Hint(frame, System.currentTimeMillis()));
+    }
+
+    public Map<String, Integer> pending() {
+        Map<String, Integer> out = new LinkedHashMap<>();
+        for (Map.Entry<String, LinkedBlockingDeque<Hint>> e : hintsByOwner.entrySet()) {
+            int n = e.getValue().size();
+            if (n > 0) out.put(e.getKey(), n);
+        }
+        return out;
+    }
+
+    private void handoffLoop() {
+        while (true) {
+            try {
+                flush();
+                Thread.sleep(2000);
+            } catch (InterruptedException ignored) {
+            } catch (Exception ignored) {
+                // keep loop alive even if something unexpected happens
+            }
+        }
+    }
+
+    // Delivers queued hints to every owner that is reachable; returns how many were delivered
+    public synchronized int flush() {
+        int delivered = 0;
+        long expiredBefore = System.currentTimeMillis() - HINT_TTL_MS;
+
+        for (Map.Entry<String, LinkedBlockingDeque<Hint>> e : hintsByOwner.entrySet()) {
+            String owner = e.getKey();
+            LinkedBlockingDeque<Hint> q = e.getValue();
+
+            // Oldest hints sit at the head; drop the ones past their TTL even if the owner never returns
+            Hint head;
+            while ((head = q.peekFirst()) != null && head.createdAtMs < expiredBefore) {
+                q.pollFirst();
+            }
+
+            if (q.isEmpty() || !client.isUp(owner)) continue;
+
+            int triesThisOwner = q.size();
+            for (int i = 0; i < triesThisOwner; i++) {
+                // Peek, and only remove after delivery: taking it out first would free a slot that a
+                // concurrent addHint can grab, leaving no room to put the hint back on a full queue.
+                // flush() is the only consumer and addHint only appends, so the head stays ours.
+                Hint h = q.peekFirst();
+                if (h == null) break;
+
+                try {
+                    client.put(owner, h.frame);
+                } catch (RestClientException ex) {
+                    // Owner went away again -> leave it at the head and retry on the next round
+                    break;
+                }
+                q.pollFirst();
+                delivered++;
+            }
+            // Empty deques are kept: removing them could race with a concurrent addHint
+        }
+
+        return delivered;
+    }
+
+    private static class Hint {
+        byte[] frame;   // encoded KvFrame (key, version, value) ready to send
+        long createdAtMs;
+
+        Hint(byte[] frame, long createdAtMs) {
+            this.frame = frame;
+            this.createdAtMs = createdAtMs;
+        }
+    }
+}
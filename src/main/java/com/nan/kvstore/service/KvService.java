@@ -1,5 +1,7 @@
 package com.nan.kvstore.service;
 
+import java.nio.charset.StandardCharsets;
+
 import org.springframework.stereotype.Service;
 
 import com.nan.kvstore.cache.LruCache;
@@ -21,21 +23,36 @@ public class KvService {
         if (fromCache != null) return fromCache;
 
         VersionedValue fromStore = store.get(key);
-        if (fromStore != null) cache.put(key, fromStore);
+        // a put may land between the store read and here; don't let this refill hide its newer value
+        if (fromStore != null) cache.putIfNewer(key, fromStore);
 
         return fromStore;
     }
 
-    // If version is provided, store it. If not, generate one.
+    // If version is provided, store it unless we already hold a newer one. If not, generate one.
     public VersionedValue put(String key, String value, Long versionOpt) {
+        return put(key, value == null ? null : value.getBytes(StandardCharsets.UTF_8), versionOpt);
+    }
+
+    // Binary put: stores the bytes as-is, no String round trip
+    public VersionedValue put(String key, byte[] value, Long versionOpt) {
         long version = (versionOpt != null) ? versionOpt : System.currentTimeMillis();
 
         VersionedValue vv = new VersionedValue(value, version);
 
-        store.put(key, vv);
-        cache.put(key, vv);
+        // Versioned writes (replication, read repair, hint replay) can arrive out of order:
+        // keep the higher version so a late replay never overwrites a newer value.
+        VersionedValue stored;
+        if (versionOpt != null) {
+            stored = store.putIfNewer(key, vv);
+            cache.putIfNewer(key, stored);
+        } else {
+            store.put(key, vv);
+            cache.put(key, vv);
+            stored = vv;
+        }
 
-        return vv;
+        return stored;
     }
 
     public boolean delete(String key) {
@@ -19,6 +19,13 @@ public class InMemoryKeyValueStore {
         map.put(key, value);
     }
 
+    // Atomically stores value unless the current entry has a higher version.
+    // Returns whichever value is stored afterwards.
+    public VersionedValue putIfNewer(String key, VersionedValue value) {
+        return map.merge(key, value, (current, incoming) ->
+                current.getVersion() > incoming.getVersion() ? current : incoming);
+    }
+
     public void delete(String key) {
         map.remove(key);
     }
@@ -0,0 +1,70 @@
+package com.nan.kvstore.api;
+
+import static org.junit.jupiter.api.Assertions.assertArrayEquals;
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import java.util.List;
+
+import org.junit.jupiter.api.Test;
+import org.springframework.http.ResponseEntity;
+import org.springframework.web.client.RestTemplate;
+
+import com.nan.kvstore.protocol.KvFrame;
+import com.nan.kvstore.protocol.NodeClient;
+import com.nan.kvstore.service.HintedHandoffService;
+import com.nan.kvstore.service.KvService;
+
+class KvControllerTests {
+
+	private final KvService service = new KvService();
+	private final KvController controller = new KvController(service, new HintedHandoffService(List.of(), new NodeClient(new RestTemplate())));
+
+	private static final byte[] RAW = { (byte) 0xff, 0, '&', '=' };
+
+	@Test
+	void binaryPutWithoutVersionLetsTheNodeAssignOne() {
+		ResponseEntity<byte[]> resp = controller.putBinary(KvFrame.encode("k", KvFrame.NO_VERSION, RAW));
+
+		assertEquals(200, resp.getStatusCode().value());
+		KvFrame ack = KvFrame.decode(resp.getBody());
+		assertEquals("k", ack.getKey());
+		assertTrue(ack.getVersion() > 0);
+		assertEquals(0, ack.getValue().length);
+		assertEquals(ack.getVersion(), service.get("k").getVersion());
+		assertArrayEquals(RAW, service.get("k").rawValue());
+	}
+
+	@Test
+	void binaryPutKeepsTheSuppliedVersion() {
+		KvFrame ack = KvFrame.decode(controller.putBinary(KvFrame.encode("k", 42L, RAW)).getBody());
+
+		assertEquals(42L, ack.getVersion());
+		assertEquals(42L, service.get("k").getVersion());
+	}
+
+	@Test
+	void binaryGetReturnsStoredVersionAndRawBytes() {
+		controller.putBinary(KvFrame.encode("k", 7L, RAW));
+
+		ResponseEntity<byte[]> resp = controller.getBinary(KvFrame.encodeKey("k", KvFrame.NO_VERSION));
+
+		assertEquals(200, resp.getStatusCode().value());
+		KvFrame frame = KvFrame.decode(resp.getBody());
+		assertEquals(7L, frame.getVersion());
+		assertArrayEquals(RAW, frame.getValue());
+	}
+
+	@Test
+	void binaryGetOfMissingKeyIs404() {
+		assertEquals(404, controller.getBinary(KvFrame.encodeKey("nope", KvFrame.NO_VERSION)).getStatusCode().value());
+	}
+
+	@Test
+	void malformedFramesAre400() {
+		byte[] truncated = { 0, 5, 'k' };
+
+		assertEquals(400, controller.putBinary(truncated).getStatusCode().value());
+		assertEquals(400, controller.getBinary(truncated).getStatusCode().value());
+	}
+}
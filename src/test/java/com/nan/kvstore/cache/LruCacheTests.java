@@ -0,0 +1,47 @@
+package com.nan.kvstore.cache;
+
+import static org.junit.jupiter.api.Assertions.assertSame;
+
+import org.junit.jupiter.api.Test;
+
+import com.nan.kvstore.model.VersionedValue;
+
+class LruCacheTests {
+
+	private final LruCache cache = new LruCache(2);
+
+	@Test
+	void putIfNewerStoresWhenKeyIsAbsent() {
+		VersionedValue v = new VersionedValue("a", 1L);
+		cache.putIfNewer("k", v);
+
+		assertSame(v, cache.get("k"));
+	}
+
+	@Test
+	void putIfNewerReplacesALowerVersion() {
+		VersionedValue newer = new VersionedValue("b", 2L);
+		cache.putIfNewer("k", new VersionedValue("a", 1L));
+		cache.putIfNewer("k", newer);
+
+		assertSame(newer, cache.get("k"));
+	}
+
+	@Test
+	void putIfNewerKeepsAHigherVersion() {
+		VersionedValue newer = new VersionedValue("b", 2L);
+		cache.putIfNewer("k", newer);
+		cache.putIfNewer("k", new VersionedValue("a", 1L));
+
+		assertSame(newer, cache.get("k"));
+	}
+
+	@Test
+	void putIfNewerWithAnEqualVersionOverwrites() {
+		VersionedValue second = new VersionedValue("b", 1L);
+		cache.putIfNewer("k", new VersionedValue("a", 1L));
+		cache.putIfNewer("k", second);
+
+		assertSame(second, cache.get("k"));
+	}
+}
@@ -0,0 +1,36 @@
+package com.nan.kvstore.gateway;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import java.util.ArrayList;
+import java.util.List;
+
+import org.junit.jupiter.api.Test;
+
+class ConsistentHashRouterTests {
+
+	private static final List<String> NODES = List.of("n1", "n2", "n3", "n4", "n5");
+
+	@Test
+	void fallbacksContinueTheRingAfterTheReplicas() {
+		ConsistentHashRouter router = new ConsistentHashRouter(NODES);
+
+		List<String> walk = new ArrayList<>(router.pickReplicaNodes("user1", 3));
+		walk.addAll(router.pickFallbackNodes("user1", 3));
+
+		// replicas + fallbacks cover every node exactly once, in ring order
+		assertEquals(NODES.size(), walk.stream().distinct().count());
+		int start = NODES.indexOf(walk.get(0));
+		for (int i = 0; i < walk.size(); i++) {
+			assertEquals(NODES.get((start + i) % NODES.size()), walk.get(i));
+		}
+	}
+
+	@Test
+	void noFallbacksWhenClusterIsNoBiggerThanReplicationFactor() {
+		ConsistentHashRouter router = new ConsistentHashRouter(List.of("n1", "n2", "n3"));
+
+		assertTrue(router.pickFallbackNodes("user1", 3).isEmpty());
+	}
+}
@@ -0,0 +1,294 @@
+package com.nan.kvstore.gateway;
+
+import static org.junit.jupiter.api.Assertions.assertArrayEquals;
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertSame;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.CountDownLatch;
+
+import org.junit.jupiter.api.Test;
+import org.springframework.http.HttpEntity;
+import org.springframework.http.HttpHeaders;
+import org.springframework.http.HttpMethod;
+import org.springframework.http.HttpStatus;
+import org.springframework.http.ResponseEntity;
+import org.springframework.web.client.HttpClientErrorException;
+import org.springframework.web.client.ResourceAccessException;
+import org.springframework.web.client.RestTemplate;
+
+import com.nan.kvstore.protocol.KvFrame;
+import com.nan.kvstore.protocol.NodeClient;
+import com.nan.kvstore.service.HintedHandoffService;
+
+class GatewayControllerTests {
+
+	private static final List<String> NODES =
+			List.of("http://localhost:8081", "http://localhost:8082", "http://localhost:8083");
+
+	private static final List<String> FIVE_NODES =
+			List.of("http://n1", "http://n2", "http://n3", "http://n4", "http://n5");
+	private static final List<String> THREE_NODES = FIVE_NODES.subList(0, 3);
+
+	private static final byte[] VALUE = "v".getBytes(StandardCharsets.UTF_8);
+
+	private final StubRestTemplate rt = new StubRestTemplate();
+	private final GatewayController gateway = newGateway(NODES, rt);
+
+	private static GatewayController newGateway(List<String> nodes, RestTemplate rt) {
+		NodeClient client = new NodeClient(rt);
+		return new GatewayController(nodes, client, new HintedHandoffService(nodes, client, false), false);
+	}
+
+	@Test
+	void missingKeyIsNotFoundAndDoesNotMarkReplicasDown() {
+		ResponseEntity<byte[]> resp = gateway.getBinary(KvFrame.encodeKey("nope", KvFrame.NO_VERSION), 3, true);
+
+		assertEquals(404, resp.getStatusCode().value());
+		assertEquals(404, gateway.get("nope", 3, true).getStatusCode().value());
+		assertTrue(gateway.clusterHealth().getBody().values().stream().allMatch(Boolean::booleanValue));
+	}
+
+	@Test
+	void replicaWithoutTheKeyIsRepairedFromOneThatHasIt() {
+		String holder = "http://localhost:8082";
+		byte[] stored = KvFrame.encode("user1", 5L, new byte[] { 7 });
+		rt.framesByNode.put(holder, stored);
+
+		ResponseEntity<byte[]> resp = gateway.getBinary(KvFrame.encodeKey("user1", KvFrame.NO_VERSION), 3, true);
+
+		assertEquals(200, resp.getStatusCode().value());
+		assertSame(stored, resp.getBody());
+		assertEquals(Set.of("http://localhost:8081", "http://localhost:8083"), rt.putsByNode.keySet());
+		rt.putsByNode.values().forEach(bodies -> assertSame(stored, bodies.get(0)));
+	}
+
+	@Test
+	void binaryPutSendsTheSameEncodedFrameToEachReplica() {
+		// w=3 so the call returns only after every replica got its put
+		ResponseEntity<byte[]> resp = gateway.putBinary(KvFrame.encode("user1", KvFrame.NO_VERSION, new byte[] { 9 }), 3);
+
+		assertEquals(200, resp.getStatusCode().value());
+		KvFrame ack = KvFrame.decode(resp.getBody());
+		assertEquals("user1", ack.getKey());
+
+		List<byte[]> sent = new ArrayList<>();
+		rt.putsByNode.values().forEach(sent::addAll);
+		assertEquals(3, sent.size());
+		sent.forEach(body -> assertSame(sent.get(0), body));
+
+		KvFrame frame = KvFrame.decode(sent.get(0));
+		assertEquals(ack.getVersion(), frame.getVersion());
+		assertArrayEquals(new byte[] { 9 }, frame.getValue());
+	}
+
+	@Test
+	void binaryPutWithoutQuorumIs503() {
+		rt.down.addAll(List.of("http://localhost:8081", "http://localhost:8082"));
+
+		assertEquals(503, gateway.putBinary(KvFrame.encode("user1", KvFrame.NO_VERSION, new byte[] { 9 }), 2)
+				.getStatusCode().value());
+	}
+
+	@Test
+	void binaryGetPassesTheNewestNodeFrameThroughUnchanged() {
+		byte[] older = KvFrame.encode("user1", 1L, new byte[] { 1 });
+		byte[] newer = KvFrame.encode("user1", 2L, new byte[] { 2 });
+		rt.framesByNode.put("http://localhost:8081", older);
+		rt.framesByNode.put("http://localhost:8083", newer);
+
+		ResponseEntity<byte[]> resp = gateway.getBinary(KvFrame.encodeKey("user1", KvFrame.NO_VERSION), 3, true);
+
+		assertSame(newer, resp.getBody());
+		assertSame(newer, rt.putsByNode.get("http://localhost:8081").get(0));
+	}
+
+	@Test
+	void malformedClientFramesAre400() {
+		byte[] truncated = { 0, 5, 'k' };
+
+		assertEquals(400, gateway.putBinary(truncated, 2).getStatusCode().value());
+		assertEquals(400, gateway.getBinary(truncated, 2, true).getStatusCode().value());
+		assertTrue(rt.putsByNode.isEmpty());
+	}
+
+	@Test
+	void keysTooLongToFrameAre400OnStringEndpoints() {
+		String key = "x".repeat(70_000);
+
+		assertEquals(400, gateway.put(key, "v", 2).getStatusCode().value());
+		assertEquals(400, gateway.get(key, 2, true).getStatusCode().value());
+		assertTrue(rt.putsByNode.isEmpty());
+	}
+
+	@Test
+	void fallbackWriteCountsTowardWAndEveryOtherReplicaStillGetsTheWrite() throws InterruptedException {
+		List<String> replicas = new ConsistentHashRouter(FIVE_NODES).pickReplicaNodes("user1", 3);
+		List<String> fallbacks = new ConsistentHashRouter(FIVE_NODES).pickFallbackNodes("user1", 3);
+		StubRestTemplate rt = new StubRestTemplate(replicas.get(0));
+		GatewayController gateway = newGateway(FIVE_NODES, rt);
+
+		GatewayController.WriteResult res = gateway.quorumWrite("user1", VALUE, 2);
+		assertTrue(res.ok());
+		res.awaitAll();
+
+		assertEquals(List.of(replicas.get(0) + "->" + fallbacks.get(0)), res.fallbacks);
+		// quorum may be met before every replica answered, but none is skipped
+		assertEquals(Set.of(replicas.get(1), replicas.get(2)), Set.copyOf(res.successes));
+		assertEquals(List.of(replicas.get(0)), rt.hintOwnersByNode.get(fallbacks.get(0)));
+		assertTrue(res.queuedHints.isEmpty());
+	}
+
+	@Test
+	void eachFallbackIsUsedAtMostOncePerWrite() {
+		List<String> replicas = new ConsistentHashRouter(FIVE_NODES).pickReplicaNodes("user1", 3);
+		List<String> fallbacks = new ConsistentHashRouter(FIVE_NODES).pickFallbackNodes("user1", 3);
+		StubRestTemplate rt = new StubRestTemplate(replicas.get(0), replicas.get(1));
+		GatewayController gateway = newGateway(FIVE_NODES, rt);
+
+		GatewayController.WriteResult res = gateway.quorumWrite("user1", VALUE, 3);
+
+		assertTrue(res.ok());
+		assertEquals(2, res.fallbacks.size());
+		// the two down replicas write in parallel, so either may get either fallback
+		assertEquals(Set.of(fallbacks.get(0), fallbacks.get(1)), rt.hintOwnersByNode.keySet());
+		assertEquals(Set.of(replicas.get(0), replicas.get(1)), Set.of(
+				rt.hintOwnersByNode.get(fallbacks.get(0)).get(0), rt.hintOwnersByNode.get(fallbacks.get(1)).get(0)));
+		rt.hintOwnersByNode.values().forEach(owners -> assertEquals(1, owners.size()));
+		assertEquals(List.of(replicas.get(2)), res.successes);
+	}
+
+	@Test
+	void writeReturnsOnceWAckedWithoutWaitingForASlowReplica() throws InterruptedException {
+		List<String> replicas = new ConsistentHashRouter(NODES).pickReplicaNodes("user1", 3);
+		rt.slow.add(replicas.get(2));
+
+		GatewayController.WriteResult res = gateway.quorumWrite("user1", VALUE, 2);
+
+		assertTrue(res.ok());
+		assertEquals(Set.of(replicas.get(0), replicas.get(1)), Set.copyOf(res.successes));
+
+		rt.release.countDown();
+		res.awaitAll();
+		assertEquals(Set.copyOf(replicas), Set.copyOf(res.successes));
+	}
+
+	@Test
+	void queuesGatewayHintWhenClusterHasNoFallbacks() throws InterruptedException {
+		List<String> replicas = new ConsistentHashRouter(THREE_NODES).pickReplicaNodes("user1", 3);
+		StubRestTemplate rt = new StubRestTemplate(replicas.get(0));
+		GatewayController gateway = newGateway(THREE_NODES, rt);
+
+		GatewayController.WriteResult res = gateway.quorumWrite("user1", VALUE, 2);
+		res.awaitAll();
+
+		assertTrue(res.ok());
+		assertTrue(res.fallbacks.isEmpty());
+		assertEquals(List.of(replicas.get(0)), res.queuedHints);
+		assertEquals(1, gateway.pendingHints().getBody().get(replicas.get(0)));
+	}
+
+	@Test
+	void gatewayHintIsDeliveredOnceTheReplicaIsBack() throws InterruptedException {
+		String owner = new ConsistentHashRouter(THREE_NODES).pickReplicaNodes("user1", 3).get(0);
+		StubRestTemplate rt = new StubRestTemplate(owner);
+		GatewayController gateway = newGateway(THREE_NODES, rt);
+		gateway.quorumWrite("user1", VALUE, 2).awaitAll();
+
+		gateway.flushHints();
+		assertEquals(1, gateway.pendingHints().getBody().get(owner));
+
+		rt.down.clear();
+		gateway.flushHints();
+
+		assertEquals(0, gateway.pendingHints().getBody().get(owner));
+		assertEquals(1, rt.putsByNode.get(owner).size());
+		assertArrayEquals(VALUE, KvFrame.decode(rt.putsByNode.get(owner).get(0)).getValue());
+	}
+
+	@Test
+	void unreachableFallbacksAreSkippedThenGatewayHintIsQueued() {
+		List<String> replicas = new ConsistentHashRouter(FIVE_NODES).pickReplicaNodes("user1", 3);
+		List<String> fallbacks = new ConsistentHashRouter(FIVE_NODES).pickFallbackNodes("user1", 3);
+		StubRestTemplate rt = new StubRestTemplate(replicas.get(0), fallbacks.get(0), fallbacks.get(1));
+		GatewayController gateway = newGateway(FIVE_NODES, rt);
+
+		GatewayController.WriteResult res = gateway.quorumWrite("user1", VALUE, 3);
+
+		assertFalse(res.ok());
+		assertTrue(res.fallbacks.isEmpty());
+		assertEquals(List.of(replicas.get(0)), res.queuedHints);
+		assertFalse(gateway.clusterHealth().getBody().get(fallbacks.get(0)));
+	}
+
+	@Test
+	void replicaMarkedDownIsNotCalledDirectlyOnTheNextWrite() throws InterruptedException {
+		List<String> replicas = new ConsistentHashRouter(FIVE_NODES).pickReplicaNodes("user1", 3);
+		StubRestTemplate rt = new StubRestTemplate(replicas.get(0));
+		GatewayController gateway = newGateway(FIVE_NODES, rt);
+
+		gateway.quorumWrite("user1", VALUE, 2).awaitAll();
+		rt.attempts.clear();
+		GatewayController.WriteResult res = gateway.quorumWrite("user1", VALUE, 2);
+		res.awaitAll();
+
+		assertTrue(res.ok());
+		assertFalse(rt.attempts.contains(replicas.get(0)));
+		assertTrue(res.failures.isEmpty());
+	}
+
+	// Serves /kv/bin/get from framesByNode (404 when absent) and records /kv/bin/put bodies and
+	// /kv/bin/hint owners. Nodes in `down` fail like an unreachable host, nodes in `slow` block until
+	// `release` opens; every attempt is recorded.
+	static class StubRestTemplate extends RestTemplate {
+		final Set<String> down = ConcurrentHashMap.newKeySet();
+		final Set<String> slow = ConcurrentHashMap.newKeySet();
+		final CountDownLatch release = new CountDownLatch(1);
+		final List<String> attempts = new CopyOnWriteArrayList<>();
+		final Map<String, byte[]> framesByNode = new ConcurrentHashMap<>();
+		final Map<String, List<byte[]>> putsByNode = new ConcurrentHashMap<>();
+		final Map<String, List<String>> hintOwnersByNode = new ConcurrentHashMap<>();
+
+		StubRestTemplate(String... down) {
+			this.down.addAll(List.of(down));
+		}
+
+		@Override
+		public <T> ResponseEntity<T> exchange(String url, HttpMethod method, HttpEntity<?> requestEntity,
+				Class<T> responseType, Object... uriVariables) {
+			String node = url.substring(0, url.indexOf("/kv/"));
+			attempts.add(node);
+			if (down.contains(node)) throw new ResourceAccessException("unreachable: " + node);
+			if (slow.contains(node)) {
+				try {
+					release.await();
+				} catch (InterruptedException e) {
+					throw new ResourceAccessException("interrupted: " + node);
+				}
+			}
+
+			if (url.endsWith("/kv/bin/get")) {
+				byte[] frame = framesByNode.get(node);
+				if (frame == null) {
+					throw HttpClientErrorException.create(HttpStatus.NOT_FOUND, "Not Found", new HttpHeaders(), null, null);
+				}
+				return ResponseEntity.ok(responseType.cast(frame));
+			}
+			if (url.endsWith("/kv/bin/put")) {
+				putsByNode.computeIfAbsent(node, k -> new CopyOnWriteArrayList<>()).add((byte[]) requestEntity.getBody());
+			}
+			if (url.contains("/kv/bin/hint")) {
+				hintOwnersByNode.computeIfAbsent(node, k -> new CopyOnWriteArrayList<>()).add((String) uriVariables[0]);
+			}
+			return ResponseEntity.ok().build();
+		}
+	}
+}
@@ -0,0 +1,39 @@
+package com.nan.kvstore.protocol;
+
+import static org.junit.jupiter.api.Assertions.assertArrayEquals;
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+
+import java.util.Arrays;
+
+import org.junit.jupiter.api.Test;
+
+class KvFrameTests {
+
+	@Test
+	void roundTripKeepsRawBytes() {
+		byte[] value = { 0, (byte) 0xff, '&', '=', '?', 10 };
+
+		KvFrame frame = KvFrame.decode(KvFrame.encode("user/1 \u00fc", 42L, value));
+
+		assertEquals("user/1 \u00fc", frame.getKey());
+		assertEquals(42L, frame.getVersion());
+		assertArrayEquals(value, frame.getValue());
+	}
+
+	@Test
+	void keyOnlyFrameHasEmptyValue() {
+		KvFrame frame = KvFrame.decode(KvFrame.encodeKey("k", KvFrame.NO_VERSION));
+
+		assertEquals(KvFrame.NO_VERSION, frame.getVersion());
+		assertEquals(0, frame.getValue().length);
+	}
+
+	@Test
+	void truncatedFrameIsRejected() {
+		byte[] full = KvFrame.encode("key", 1L, new byte[] { 1, 2, 3 });
+		byte[] truncated = Arrays.copyOf(full, full.length - 1);
+
+		assertThrows(IllegalArgumentException.class, () -> KvFrame.decode(truncated));
+	}
+}
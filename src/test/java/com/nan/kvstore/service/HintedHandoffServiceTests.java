@@ -0,0 +1,130 @@
+package com.nan.kvstore.service;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertSame;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import java.util.ArrayList;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+
+import org.junit.jupiter.api.Test;
+import org.springframework.http.HttpEntity;
+import org.springframework.http.HttpMethod;
+import org.springframework.http.ResponseEntity;
+import org.springframework.web.client.ResourceAccessException;
+import org.springframework.web.client.RestTemplate;
+
+import com.nan.kvstore.protocol.KvFrame;
+import com.nan.kvstore.protocol.NodeClient;
+
+class HintedHandoffServiceTests {
+
+	private static final String OWNER = "http://n1";
+
+	private final StubRestTemplate rt = new StubRestTemplate();
+	private final HintedHandoffService handoff = new HintedHandoffService(List.of(OWNER, "http://n2"), new NodeClient(rt), false);
+
+	private final byte[] first = KvFrame.encode("k", 1L, new byte[] { 1 });
+	private final byte[] second = KvFrame.encode("k", 2L, new byte[] { 2 });
+
+	@Test
+	void keepsHintsWhileOwnerIsDown() {
+		handoff.addHint(OWNER, first);
+
+		assertEquals(0, handoff.flush());
+		assertEquals(Map.of(OWNER, 1), handoff.pending());
+		assertTrue(rt.delivered.isEmpty());
+	}
+
+	@Test
+	void handsHintsBackInOrderOnceOwnerIsUp() {
+		handoff.addHint(OWNER, first);
+		handoff.addHint(OWNER, second);
+		rt.up.add(OWNER);
+
+		assertEquals(2, handoff.flush());
+		assertSame(first, rt.delivered.get(0));
+		assertSame(second, rt.delivered.get(1));
+		assertTrue(handoff.pending().isEmpty());
+	}
+
+	@Test
+	void failedDeliveryIsRequeuedAtTheHead() {
+		handoff.addHint(OWNER, first);
+		handoff.addHint(OWNER, second);
+		rt.up.add(OWNER);
+		rt.failNextPuts = 1;
+
+		assertEquals(0, handoff.flush());
+		assertEquals(Map.of(OWNER, 2), handoff.pending());
+
+		assertEquals(2, handoff.flush());
+		assertSame(first, rt.delivered.get(0));
+		assertSame(second, rt.delivered.get(1));
+	}
+
+	@Test
+	void rejectsOwnersOutsideTheCluster() {
+		assertThrows(IllegalArgumentException.class, () -> handoff.addHint("http://169.254.169.254", first));
+		assertTrue(handoff.pending().isEmpty());
+	}
+
+	@Test
+	void refusesHintsOnceOwnerQueueIsFull() {
+		for (int i = 0; i < HintedHandoffService.MAX_HINTS_PER_OWNER; i++) {
+			assertTrue(handoff.addHint(OWNER, first));
+		}
+
+		assertFalse(handoff.addHint(OWNER, first));
+		assertTrue(handoff.addHint("http://n2", first));
+	}
+
+	@Test
+	void failedDeliveryOnAFullQueueKeepsTheHint() {
+		for (int i = 0; i < HintedHandoffService.MAX_HINTS_PER_OWNER; i++) {
+			handoff.addHint(OWNER, i == 0 ? first : second);
+		}
+		rt.up.add(OWNER);
+		rt.failNextPuts = 1;
+		// a write racing with the failed delivery must not take the hint's slot
+		rt.duringPut = () -> assertFalse(handoff.addHint(OWNER, second));
+
+		assertEquals(0, handoff.flush());
+		assertEquals(Map.of(OWNER, HintedHandoffService.MAX_HINTS_PER_OWNER), handoff.pending());
+
+		rt.duringPut = null;
+		handoff.flush();
+		assertSame(first, rt.delivered.get(0));
+	}
+
+	// Nodes not in `up` are unreachable; the first `failNextPuts` puts fail even when up.
+	// `duringPut` runs inside each put, before it fails or succeeds.
+	static class StubRestTemplate extends RestTemplate {
+		final Set<String> up = new HashSet<>();
+		final List<byte[]> delivered = new ArrayList<>();
+		int failNextPuts;
+		Runnable duringPut;
+
+		@Override
+		public <T> ResponseEntity<T> exchange(String url, HttpMethod method, HttpEntity<?> requestEntity,
+				Class<T> responseType, Object... uriVariables) {
+			String node = url.substring(0, url.indexOf("/kv/"));
+			if (!up.contains(node)) throw new ResourceAccessException("unreachable: " + node);
+
+			if (url.endsWith("/kv/bin/put")) {
+				if (duringPut != null) duringPut.run();
+				if (failNextPuts > 0) {
+					failNextPuts--;
+					throw new ResourceAccessException("timed out: " + node);
+				}
+				delivered.add((byte[]) requestEntity.getBody());
+			}
+			return ResponseEntity.ok().build();
+		}
+	}
+}
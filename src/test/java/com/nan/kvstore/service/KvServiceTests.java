@@ -0,0 +1,51 @@
+package com.nan.kvstore.service;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+
+import org.junit.jupiter.api.Test;
+
+import com.nan.kvstore.model.VersionedValue;
+
+class KvServiceTests {
+
+	private final KvService service = new KvService();
+
+	@Test
+	void versionedPutReplacesALowerVersion() {
+		service.put("k", "old", 1L);
+
+		VersionedValue stored = service.put("k", "new", 2L);
+
+		assertEquals(2L, stored.getVersion());
+		assertEquals("new", service.get("k").getValue());
+	}
+
+	@Test
+	void versionedPutKeepsAHigherVersion() {
+		service.put("k", "new", 2L);
+
+		VersionedValue stored = service.put("k", "old", 1L);
+
+		assertEquals(2L, stored.getVersion());
+		assertEquals("new", stored.getValue());
+		assertEquals("new", service.get("k").getValue());
+	}
+
+	@Test
+	void versionedPutWithAnEqualVersionOverwrites() {
+		service.put("k", "a", 5L);
+
+		assertEquals("b", service.put("k", "b", 5L).getValue());
+		assertEquals("b", service.get("k").getValue());
+	}
+
+	@Test
+	void unversionedPutAlwaysStoresWithAGeneratedVersion() {
+		service.put("k", "a", Long.MAX_VALUE);
+
+		VersionedValue stored = service.put("k", "b", null);
+
+		assertEquals("b", stored.getValue());
+		assertEquals("b", service.get("k").getValue());
+	}
+}
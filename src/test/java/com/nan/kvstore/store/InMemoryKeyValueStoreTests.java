@@ -0,0 +1,47 @@
+package com.nan.kvstore.store;
+
+import static org.junit.jupiter.api.Assertions.assertSame;
+
+import org.junit.jupiter.api.Test;
+
+import com.nan.kvstore.model.VersionedValue;
+
+class InMemoryKeyValueStoreTests {
+
+	private final InMemoryKeyValueStore store = new InMemoryKeyValueStore();
+
+	@Test
+	void putIfNewerStoresWhenKeyIsAbsent() {
+		VersionedValue v = new VersionedValue("a", 1L);
+
+		assertSame(v, store.putIfNewer("k", v));
+		assertSame(v, store.get("k"));
+	}
+
+	@Test
+	void putIfNewerReplacesALowerVersion() {
+		VersionedValue newer = new VersionedValue("b", 2L);
+		store.putIfNewer("k", new VersionedValue("a", 1L));
+
+		assertSame(newer, store.putIfNewer("k", newer));
+		assertSame(newer, store.get("k"));
+	}
+
+	@Test
+	void putIfNewerKeepsAHigherVersion() {
+		VersionedValue newer = new VersionedValue("b", 2L);
+		store.putIfNewer("k", newer);
+
+		assertSame(newer, store.putIfNewer("k", new VersionedValue("a", 1L)));
+		assertSame(newer, store.get("k"));
+	}
+
+	@Test
+	void putIfNewerWithAnEqualVersionOverwrites() {
+		VersionedValue second = new VersionedValue("b", 1L);
+		store.putIfNewer("k", new VersionedValue("a", 1L));
+
+		assertSame(second, store.putIfNewer("k", second));
+		assertSame(second, store.get("k"));
+	}
+}